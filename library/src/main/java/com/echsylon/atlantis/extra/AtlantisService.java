@@ -11,18 +11,24 @@ import android.content.pm.ServiceInfo;
 import android.content.res.Resources;
 import android.os.Bundle;
 import android.os.IBinder;
+import android.os.Process;
 import android.preference.PreferenceManager;
 import android.util.Log;
 
 import com.echsylon.atlantis.Atlantis;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This service ensures an isolated runtime for the {@link Atlantis} mock
@@ -66,6 +72,20 @@ import java.net.URL;
  *         Log.d("TAG", "Atlantis isn't available in this build config");
  *
  * </code></pre>
+ * <p>
+ * The configuration can also be read from a single zip archive. The
+ * configuration entry name is given as a fragment and defaults to
+ * {@code "config.json"}:
+ * <pre><code>
+ *
+ *     intent.putExtra("echsylon.atlantis.extra.DATA",
+ *             "bundle:///sdcard/mocks.zip#config.json");
+ *
+ * </code></pre>
+ * NOTE! Only the configuration entry is read from the bundle. Any response
+ * body sources in the configuration are still resolved by {@code Atlantis}
+ * itself, which knows nothing about the bundle.
+ * <p>
  * To have a more interactive connection to this service the client can bind to
  * it and get a reference to the service instance through the returned binder.
  * The instance then exposes a somewhat more nuanced API.
@@ -159,6 +179,10 @@ public class AtlantisService extends Service {
     private static final String FEATURE_RECORD_MISSING_REQUESTS = "RECORD";
     private static final String FEATURE_RECORD_MISSING_FAILURES = "RECORD_FAILURES";
 
+    private static final String DEFAULT_BUNDLE_CONFIGURATION = "config.json";
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
     private static final int NOTIFICATION_ID = 1;
 
     /**
@@ -184,7 +208,11 @@ public class AtlantisService extends Service {
     private String recordingPreferenceKey;
     private String recordingFailuresPreferenceKey;
     private String enabledPreferenceKey;
-    private Atlantis atlantis;
+    private final AtlantisStatistics statistics = new AtlantisStatistics();
+    private Executor executor;
+    private volatile Atlantis atlantis;
+    private volatile String configuration;
+    private volatile boolean isDestroyed;
 
 
     @Override
@@ -203,20 +231,48 @@ public class AtlantisService extends Service {
         recordingFailuresPreferenceKey = getString(R.string.key_atlantis_record_failures);
         enabledPreferenceKey = getString(R.string.key_atlantis_enable);
 
-        String configuration = sharedPreferences.getString(configurationPreferenceKey, null);
-        boolean doEnable = sharedPreferences.getBoolean(recordingFailuresPreferenceKey, false);
-
-        setAtlantisEnabled(doEnable && configuration != null, configuration);
-        setRecordMissingRequestsEnabled(sharedPreferences.getBoolean(recordingPreferenceKey, false));
-        setRecordMissingFailuresEnabled(sharedPreferences.getBoolean(recordingFailuresPreferenceKey, false));
+        if (executor == null)
+            executor = Executors.newSingleThreadExecutor(runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, TAG));
+
+        final String configuration = sharedPreferences.getString(configurationPreferenceKey, null);
+        final boolean doEnable = sharedPreferences.getBoolean(enabledPreferenceKey, false);
+        final boolean doRecord = sharedPreferences.getBoolean(recordingPreferenceKey, false);
+        final boolean doRecordFailures = sharedPreferences.getBoolean(recordingFailuresPreferenceKey, false);
+
+        // Reading the configuration may involve both disk and network access.
+        // Keep it off the main thread. The single threaded executor also
+        // guarantees that any state changes queued by a bound client will be
+        // applied after this initial setup.
+        runInBackground(() -> {
+            setAtlantisEnabled(doEnable && configuration != null, configuration);
+            setRecordMissingRequestsEnabled(doRecord);
+            setRecordMissingFailuresEnabled(doRecordFailures);
+        });
     }
 
     @Override
     public void onDestroy() {
-        if (atlantis != null) {
-            atlantis.stop();
-            atlantis = null;
-        }
+        // Never wait for the lock here; a background task may hold it for the
+        // full duration of a configuration download. The teardown is queued
+        // after any pending state changes instead.
+        isDestroyed = true;
+        runInBackground(() -> {
+            synchronized (AtlantisService.this) {
+                if (atlantis != null) {
+                    atlantis.stop();
+                    atlantis = null;
+                }
+
+                configuration = null;
+            }
+        });
+
+        // Any already queued tasks, including the teardown, still run.
+        if (executor instanceof ExecutorService)
+            ((ExecutorService) executor).shutdown();
 
         setServiceForegroundEnabled(false);
         super.onDestroy();
@@ -224,7 +280,7 @@ public class AtlantisService extends Service {
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (ACTION_SET.equals(intent.getAction())) {
+        if (intent != null && ACTION_SET.equals(intent.getAction())) {
             String feature = intent.getStringExtra(EXTRA_FEATURE);
             if (feature != null)
                 switch (feature) {
@@ -234,21 +290,21 @@ public class AtlantisService extends Service {
                                 sharedPreferences.getBoolean(enabledPreferenceKey, false));
                         String configuration = extras.getString(EXTRA_DATA,
                                 sharedPreferences.getString(configurationPreferenceKey, null));
-                        setAtlantisEnabled(enable, configuration);
+                        runInBackground(() -> setAtlantisEnabled(enable, configuration));
                         break;
                     }
                     case FEATURE_RECORD_MISSING_REQUESTS: {
                         Bundle extras = intent.getExtras();
                         boolean enable = extras.getBoolean(EXTRA_STATE,
                                 sharedPreferences.getBoolean(recordingPreferenceKey, false));
-                        setRecordMissingRequestsEnabled(enable);
+                        runInBackground(() -> setRecordMissingRequestsEnabled(enable));
                         break;
                     }
                     case FEATURE_RECORD_MISSING_FAILURES: {
                         Bundle extras = intent.getExtras();
                         boolean enable = extras.getBoolean(EXTRA_STATE,
                                 sharedPreferences.getBoolean(recordingFailuresPreferenceKey, false));
-                        setRecordMissingFailuresEnabled(enable);
+                        runInBackground(() -> setRecordMissingFailuresEnabled(enable));
                         break;
                     }
                     default:
@@ -270,18 +326,24 @@ public class AtlantisService extends Service {
      *                      the enabled flag is "false" then this parameter is
      *                      ignored and can safely be passed as null.
      */
-    public void setAtlantisEnabled(final boolean enable, final String configuration) {
+    public synchronized void setAtlantisEnabled(final boolean enable, final String configuration) {
+        if (isDestroyed)
+            return;
+
         if (atlantis != null) {
             atlantis.stop();
             atlantis = null;
         }
 
+        this.configuration = null;
+        statistics.clear();
         if (enable) {
             InputStream inputStream = null;
             try {
                 inputStream = getConfigurationInputStream(configuration);
                 atlantis = new Atlantis(getApplicationContext(), inputStream);
                 atlantis.start();
+                this.configuration = configuration;
                 updateConfigurationPreference(configuration);
                 updateEnabledPreference(true);
             } catch (Exception e) {
@@ -301,7 +363,7 @@ public class AtlantisService extends Service {
      *
      * @param enable The desired enabled state of the feature.
      */
-    public void setRecordMissingRequestsEnabled(final boolean enable) {
+    public synchronized void setRecordMissingRequestsEnabled(final boolean enable) {
         if (atlantis != null) {
             atlantis.setRecordMissingRequestsEnabled(enable);
             updateRecordingPreference(enable);
@@ -315,7 +377,7 @@ public class AtlantisService extends Service {
      *
      * @param enable The desired enabled state of the feature.
      */
-    public void setRecordMissingFailuresEnabled(final boolean enable) {
+    public synchronized void setRecordMissingFailuresEnabled(final boolean enable) {
         if (atlantis != null) {
             atlantis.setRecordMissingFailuresEnabled(enable);
             updateRecordingPreference(enable);
@@ -329,9 +391,21 @@ public class AtlantisService extends Service {
      * and deliver mock responses for them. False otherwise.
      */
     public boolean isAtlantisEnabled() {
+        Atlantis atlantis = this.atlantis;
         return atlantis != null && atlantis.isRunning();
     }
 
+    /**
+     * Returns the configuration source description {@code Atlantis} is
+     * currently running on.
+     *
+     * @return The configuration description or null if {@code Atlantis} isn't
+     * running.
+     */
+    public String getConfiguration() {
+        return configuration;
+    }
+
     /**
      * Returns the enabled state for whether missing request templates are
      * recorded or not.
@@ -339,9 +413,74 @@ public class AtlantisService extends Service {
      * @return Boolean true if missing requests are recorded, false otherwise.
      */
     public boolean isRecordMissingRequestsEnabled() {
+        Atlantis atlantis = this.atlantis;
         return atlantis != null && atlantis.isRecordingMissingRequests();
     }
 
+    /**
+     * Records a served request in the runtime statistics. {@code Atlantis}
+     * doesn't report the requests it serves, hence the client is expected to
+     * report them here, e.g. from a network interceptor, for the throughput
+     * to show in the settings dashboard.
+     *
+     * @param latencyNanos The time it took to serve the request, or a negative
+     *                     value if unknown.
+     * @param isHit        Whether a mock response was found for the request.
+     */
+    public void recordRequest(final long latencyNanos, final boolean isHit) {
+        statistics.record(latencyNanos, isHit);
+    }
+
+    /**
+     * Populates the given snapshot with the current runtime statistics, based
+     * on the requests reported through {@link #recordRequest(long, boolean)}.
+     * This is cheap enough to be polled from the main thread and doesn't
+     * allocate any memory, provided the caller reuses the snapshot instance.
+     *
+     * @param snapshot The snapshot to populate.
+     * @return The very same snapshot, for convenience.
+     */
+    public AtlantisStatistics.Snapshot getStatistics(final AtlantisStatistics.Snapshot snapshot) {
+        return statistics.snapshot(snapshot);
+    }
+
+
+    /**
+     * Overrides the executor the service runs its state changes on. This must
+     * be called before the service is created. Exposed for tests to control
+     * when background work runs.
+     *
+     * @param executor The executor to use.
+     */
+    void setExecutor(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the single threaded executor owned by this service. Bound
+     * clients in this library queue their state changes here, so they are
+     * applied in order with the service's own.
+     *
+     * @return The executor.
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Runs the given task on the service executor. All state changes go
+     * through here to keep disk and network access off the main thread and
+     * to have them applied in the order they were requested.
+     *
+     * @param task The task to run.
+     */
+    private void runInBackground(final Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.i(TAG, "Service is destroyed, ignoring state change", e);
+        }
+    }
 
     /**
      * Updates the {@code Atlantis} configuration preference.
@@ -454,7 +593,7 @@ public class AtlantisService extends Service {
     /**
      * Parses a given {@code Atlantis} configuration description and returns the
      * corresponding JSON. If the description doesn't state a specific scheme;
-     * {@code [asset|file|http|https]} then a guesswork is started where the
+     * {@code [asset|bundle|file|http|https]} then a guesswork is started where the
      * first non-exception attempt is assumed being a qualified guess.
      *
      * @param description The {@code Atlantis} configuration description.
@@ -474,6 +613,19 @@ public class AtlantisService extends Service {
                 return null;
             }
 
+        // This is clearly a zip bundle reference.
+        if (description.startsWith("bundle://"))
+            try {
+                String reference = description.substring(9);
+                int separator = reference.lastIndexOf('#');
+                String file = separator < 0 ? reference : reference.substring(0, separator);
+                String entry = separator < 0 ? DEFAULT_BUNDLE_CONFIGURATION : reference.substring(separator + 1);
+                return ZipBundle.forFile(new File(file)).open(entry);
+            } catch (Exception e) {
+                Log.i(TAG, "Couldn't read configuration: " + description, e);
+                return null;
+            }
+
         // This is clearly a file reference.
         if (description.startsWith("file://"))
             try {
@@ -489,6 +641,8 @@ public class AtlantisService extends Service {
             try {
                 URL url = new URL(description);
                 HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
                 return connection.getInputStream();
             } catch (Exception e) {
                 Log.i(TAG, "Couldn't read configuration: " + description, e);
@@ -7,7 +7,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.IBinder;
@@ -16,14 +15,40 @@ import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.preference.SwitchPreference;
+import android.text.TextUtils;
 
 public class AtlantisSettingsFragment extends PreferenceFragment {
+    private static final long DASHBOARD_REFRESH_INTERVAL_MILLIS = 1000;
+    private static final long NOT_SHOWN = Long.MIN_VALUE;
+    private static final long NO_SAMPLES = -1;
 
     private String configurationPreferenceKey;
     private String recordingPreferenceKey;
     private String recordingFailuresPreferenceKey;
     private String enabledPreferenceKey;
 
+    private Preference throughputPreference;
+    private Preference heapPreference;
+    private String noSamplesText;
+    private String requestsPerSecondUnit;
+    private String megabytesUnit;
+
+    // The dashboard values currently shown, the heap in tenths of megabytes,
+    // and the builder used to format them. Summaries are only reformatted when
+    // their shown value changes.
+    private final StringBuilder summary = new StringBuilder(64);
+    private long shownRequestsPerSecond = NOT_SHOWN;
+    private long shownHeap = NOT_SHOWN;
+    private final AtlantisStatistics.Snapshot snapshot = new AtlantisStatistics.Snapshot();
+    private final Handler dashboardHandler = new Handler(Looper.getMainLooper());
+    private final Runnable dashboardUpdater = new Runnable() {
+        @Override
+        public void run() {
+            refreshDashboard();
+            dashboardHandler.postDelayed(this, DASHBOARD_REFRESH_INTERVAL_MILLIS);
+        }
+    };
+
     private boolean isEnabled;
     private boolean isRecording;
     private boolean isRecordingFailures;
@@ -36,10 +61,13 @@ public class AtlantisSettingsFragment extends PreferenceFragment {
             AtlantisService.Binder atlantisBinder = (AtlantisService.Binder) binder;
             service = atlantisBinder.getService();
             refreshServiceState();
+            dashboardHandler.removeCallbacks(dashboardUpdater);
+            dashboardHandler.post(dashboardUpdater);
         }
 
         @Override
         public void onServiceDisconnected(ComponentName component) {
+            dashboardHandler.removeCallbacks(dashboardUpdater);
             service = null;
         }
     };
@@ -54,6 +82,12 @@ public class AtlantisSettingsFragment extends PreferenceFragment {
         recordingFailuresPreferenceKey = getString(R.string.key_atlantis_record_failures);
         enabledPreferenceKey = getString(R.string.key_atlantis_enable);
 
+        throughputPreference = findPreference(getString(R.string.key_atlantis_dashboard_throughput));
+        heapPreference = findPreference(getString(R.string.key_atlantis_dashboard_heap));
+        noSamplesText = getString(R.string.dashboard_no_samples);
+        requestsPerSecondUnit = getString(R.string.dashboard_unit_requests_per_second);
+        megabytesUnit = getString(R.string.dashboard_unit_megabytes);
+
         Context context = getActivity().getApplicationContext();
         SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
         configuration = sharedPreferences.getString(configurationPreferenceKey, null);
@@ -103,49 +137,84 @@ public class AtlantisSettingsFragment extends PreferenceFragment {
     @Override
     public void onStop() {
         super.onStop();
+        dashboardHandler.removeCallbacks(dashboardUpdater);
         Context context = getActivity();
         context.unbindService(connection);
     }
 
     private void refreshServiceState() {
-        if (service != null)
-            new AsyncTask<Void, Void, Void>() {
-                @Override
-                protected void onPreExecute() {
-                    Context context = getActivity();
-                    if (progress != null && context != null)
-                        progress = ProgressDialog.show(context, null, null, true);
-                }
+        final AtlantisService service = this.service;
+        if (service == null)
+            return;
 
-                @Override
-                protected Void doInBackground(Void... params) {
-                    if (service != null) {
-                        try {
-                            service.setAtlantisEnabled(isEnabled, configuration);
-                            service.setRecordMissingRequestsEnabled(isRecording);
-                            service.setRecordMissingFailuresEnabled(isRecordingFailures);
-                        } catch (Exception e) {
-                            e.printStackTrace();
-                        }
-                    }
-                    return null;
-                }
+        Context context = getActivity();
+        if (progress == null && context != null)
+            progress = ProgressDialog.show(context, null, null, true);
+
+        // Queued on the service's own executor, so these changes are applied
+        // after any state changes the service itself has pending.
+        final boolean isEnabled = this.isEnabled;
+        final boolean isRecording = this.isRecording;
+        final boolean isRecordingFailures = this.isRecordingFailures;
+        final String configuration = this.configuration;
+        service.getExecutor().execute(() -> {
+            try {
+                // Only restart Atlantis when it's actually affected.
+                if (isEnabled != service.isAtlantisEnabled() ||
+                        (isEnabled && !TextUtils.equals(configuration, service.getConfiguration())))
+                    service.setAtlantisEnabled(isEnabled, configuration);
+                service.setRecordMissingRequestsEnabled(isRecording);
+                service.setRecordMissingFailuresEnabled(isRecordingFailures);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
 
-                @Override
-                protected void onPostExecute(Void aVoid) {
-                    new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                        if (progress != null)
-                            progress.dismiss();
-                        validateIntegrity();
-                    }, 200);
+            new Handler(Looper.getMainLooper()).postDelayed(() -> {
+                if (progress != null) {
+                    progress.dismiss();
+                    progress = null;
                 }
-            }.execute();
+                validateIntegrity();
+            }, 200);
+        });
+    }
+
+    private void refreshDashboard() {
+        if (service == null)
+            return;
+
+        service.getStatistics(snapshot);
+
+        long requestsPerSecond = snapshot.sampleCount > 0 ? snapshot.requestsPerSecond : NO_SAMPLES;
+        if (requestsPerSecond != shownRequestsPerSecond) {
+            shownRequestsPerSecond = requestsPerSecond;
+            if (requestsPerSecond != NO_SAMPLES) {
+                summary.setLength(0);
+                summary.append(requestsPerSecond).append(' ').append(requestsPerSecondUnit);
+                throughputPreference.setSummary(summary.toString());
+            } else {
+                throughputPreference.setSummary(noSamplesText);
+            }
+        }
+
+        long heap = Math.round(snapshot.heapUsedBytes * 10d / (1024d * 1024d));
+        if (heap != shownHeap) {
+            shownHeap = heap;
+            summary.setLength(0);
+            appendTenths(summary, heap).append(' ').append(megabytesUnit);
+            heapPreference.setSummary(summary.toString());
+        }
+    }
+
+    private static StringBuilder appendTenths(StringBuilder builder, long tenths) {
+        return builder.append(tenths / 10).append('.').append(tenths % 10);
     }
 
     private void validateIntegrity() {
         if (service != null)
             if (isEnabled && !service.isAtlantisEnabled()) {
                 // Reset the preference.
+                isEnabled = false;
                 SwitchPreference enabled = (SwitchPreference) findPreference(enabledPreferenceKey);
                 enabled.setChecked(false);
                 new AlertDialog.Builder(getActivity())
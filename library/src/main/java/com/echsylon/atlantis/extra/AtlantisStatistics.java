@@ -0,0 +1,177 @@
+package com.echsylon.atlantis.extra;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps track of the runtime statistics shown in the settings
+ * dashboard. Each sampled request is stored with a timestamp, its latency and
+ * whether it was a hit, in a fixed size ring buffer. All buffers are allocated
+ * up front, hence neither recording a sample nor taking a {@link Snapshot}
+ * will cause any allocations. The oldest samples are silently overwritten once
+ * the buffer is full, which also caps the measurable throughput at the buffer
+ * capacity per second.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class AtlantisStatistics {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+    private static final long ONE_SECOND_NANOS = 1_000_000_000L;
+
+    /**
+     * Describes the state of the statistics at a given point in time. The
+     * client is expected to create an instance once and then keep passing it
+     * to {@link AtlantisService#getStatistics(Snapshot)}.
+     */
+    public static final class Snapshot {
+        public int requestsPerSecond;
+        public int sampleCount;
+        public int latencySampleCount;
+        public double p50LatencyMillis;
+        public double p95LatencyMillis;
+        public double p99LatencyMillis;
+        public int hitCount;
+        public int missCount;
+        public long heapUsedBytes;
+
+        /**
+         * Returns the ratio of sampled requests that could be served.
+         *
+         * @return The hit ratio in the range [0..1], or 0 if there are no
+         * samples yet.
+         */
+        public float hitRatio() {
+            int total = hitCount + missCount;
+            return total > 0 ?
+                    (float) hitCount / total :
+                    0f;
+        }
+    }
+
+
+    private final Object snapshotLock = new Object();
+    private final long[] timestamps;
+    private final long[] latencies;
+    private final boolean[] hits;
+    private final long[] scratch;
+    private int position;
+    private int count;
+
+
+    /**
+     * Creates a new statistics buffer with a default capacity.
+     */
+    public AtlantisStatistics() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new statistics buffer with a custom capacity.
+     *
+     * @param capacity The max number of samples to keep.
+     */
+    public AtlantisStatistics(final int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+
+        timestamps = new long[capacity];
+        latencies = new long[capacity];
+        hits = new boolean[capacity];
+        scratch = new long[capacity];
+        clear();
+    }
+
+    /**
+     * Records a sampled request.
+     *
+     * @param latencyNanos The time it took to serve the request, or a
+     *                     negative value if unknown. Samples with unknown
+     *                     latency only count towards the hit ratio.
+     * @param isHit        Whether the request could be served or not.
+     */
+    public synchronized void record(final long latencyNanos, final boolean isHit) {
+        timestamps[position] = nanoTime();
+        latencies[position] = latencyNanos;
+        hits[position] = isHit;
+        position = (position + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+    }
+
+    /**
+     * Forgets all recorded samples.
+     */
+    public synchronized void clear() {
+        position = 0;
+        count = 0;
+    }
+
+    /**
+     * Populates the given snapshot with the current state of the statistics.
+     * The samples are copied while holding the recording lock, but sorted
+     * after it's released, so recording threads are never stalled by a
+     * snapshot.
+     *
+     * @param snapshot The snapshot to populate.
+     * @return The very same snapshot, for convenience.
+     */
+    public Snapshot snapshot(final Snapshot snapshot) {
+        synchronized (snapshotLock) {
+            int latencyCount = 0;
+            int hitCount = 0;
+            int recentCount = 0;
+            int sampleCount;
+
+            synchronized (this) {
+                long now = nanoTime();
+                sampleCount = count;
+                for (int i = 0; i < count; i++) {
+                    if (latencies[i] >= 0)
+                        scratch[latencyCount++] = latencies[i];
+                    if (hits[i])
+                        hitCount++;
+                    if (now - timestamps[i] <= ONE_SECOND_NANOS)
+                        recentCount++;
+                }
+            }
+
+            Arrays.sort(scratch, 0, latencyCount);
+
+            Runtime runtime = Runtime.getRuntime();
+            snapshot.requestsPerSecond = recentCount;
+            snapshot.sampleCount = sampleCount;
+            snapshot.latencySampleCount = latencyCount;
+            snapshot.p50LatencyMillis = percentileMillis(latencyCount, 50);
+            snapshot.p95LatencyMillis = percentileMillis(latencyCount, 95);
+            snapshot.p99LatencyMillis = percentileMillis(latencyCount, 99);
+            snapshot.hitCount = hitCount;
+            snapshot.missCount = sampleCount - hitCount;
+            snapshot.heapUsedBytes = runtime.totalMemory() - runtime.freeMemory();
+            return snapshot;
+        }
+    }
+
+
+    /**
+     * Returns the current monotonic time. Exposed for tests to control.
+     *
+     * @return The time in nanoseconds.
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Picks the nearest-rank percentile from the sorted scratch buffer.
+     *
+     * @param size       The number of valid latencies in the scratch buffer.
+     * @param percentile The percentile to pick, in the range [0..100].
+     * @return The latency in milliseconds or 0 if there are no samples.
+     */
+    private double percentileMillis(final int size, final int percentile) {
+        if (size == 0)
+            return 0d;
+
+        int rank = (percentile * size + 99) / 100;
+        int index = Math.max(0, Math.min(size - 1, rank - 1));
+        return scratch[index] / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,333 @@
+package com.echsylon.atlantis.extra;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * This class offers read access to the entries of a single zip archive. The
+ * archive file is memory mapped and only the central directory is parsed when
+ * the bundle is opened. The actual entry data is not touched until a stream is
+ * requested for it. Stored (uncompressed) entries are served straight from the
+ * mapped region while deflated entries are inflated on the fly.
+ * <p>
+ * Mapped regions can't be reliably released on demand, hence there is only
+ * ever one mapping per archive path. It's reused for as long as someone still
+ * refers to it and the archive file remains unchanged, and released with the
+ * bundle once it's no longer referenced. Instances are immutable and can
+ * safely be shared between threads.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class ZipBundle {
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final Map<String, WeakReference<ZipBundle>> BUNDLES = new HashMap<>();
+
+    /**
+     * Describes where in the mapped archive a single entry lives.
+     */
+    private static final class Entry {
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int localHeaderOffset;
+
+        private Entry(int method, int compressedSize, int size, int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    /**
+     * Exposes a region of a byte buffer as an input stream. The region is
+     * sliced from the mapped archive, hence no data is copied.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ?
+                    buffer.get() & 0xff :
+                    -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0)
+                return 0;
+
+            if (!buffer.hasRemaining())
+                return -1;
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+
+
+    /**
+     * Returns the bundle for the given zip archive. A previously mapped bundle
+     * is reused if it's still referenced somewhere and the archive file hasn't
+     * changed since it was mapped.
+     * Otherwise the archive is memory mapped and its central directory
+     * indexed.
+     *
+     * @param file The zip archive file.
+     * @return The bundle, never null.
+     * @throws IOException If the file can't be read or isn't a valid zip
+     *                     archive.
+     */
+    public static ZipBundle forFile(final File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (BUNDLES) {
+            // Forget about bundles that have been garbage collected.
+            Iterator<WeakReference<ZipBundle>> iterator = BUNDLES.values().iterator();
+            while (iterator.hasNext())
+                if (iterator.next().get() == null)
+                    iterator.remove();
+
+            WeakReference<ZipBundle> reference = BUNDLES.get(path);
+            ZipBundle bundle = reference != null ? reference.get() : null;
+            if (bundle == null || bundle.length != file.length() || bundle.lastModified != file.lastModified()) {
+                bundle = new ZipBundle(file);
+                BUNDLES.put(path, new WeakReference<>(bundle));
+            }
+
+            return bundle;
+        }
+    }
+
+
+    private final MappedByteBuffer archive;
+    private final Map<String, Entry> entries;
+    private final long length;
+    private final long lastModified;
+
+
+    /**
+     * Opens and memory maps the given zip archive and indexes its central
+     * directory.
+     *
+     * @param file The zip archive file.
+     * @throws IOException If the file can't be read or isn't a valid zip
+     *                     archive.
+     */
+    private ZipBundle(final File file) throws IOException {
+        length = file.length();
+        lastModified = file.lastModified();
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            archive = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            archive.order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            // The mapping stays valid even after the channel is closed.
+            randomAccessFile.close();
+        }
+
+        entries = Collections.unmodifiableMap(readCentralDirectory());
+    }
+
+    /**
+     * Returns the names of all entries in this bundle.
+     *
+     * @return An unmodifiable set of entry names, never null.
+     */
+    public Set<String> names() {
+        return entries.keySet();
+    }
+
+    /**
+     * Returns whether this bundle contains an entry with the given name.
+     *
+     * @param name The name of the entry.
+     * @return Boolean true if the entry exists, false otherwise.
+     */
+    public boolean contains(final String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * Returns the uncompressed size of the given entry.
+     *
+     * @param name The name of the entry.
+     * @return The size in bytes or -1 if there is no such entry.
+     */
+    public int size(final String name) {
+        Entry entry = entries.get(name);
+        return entry != null ?
+                entry.size :
+                -1;
+    }
+
+    /**
+     * Opens a stream to the data of the given entry. Stored entries will be
+     * read directly from the mapped archive and deflated entries will be
+     * inflated as the stream is read.
+     *
+     * @param name The name of the entry.
+     * @return An input stream to the uncompressed entry data.
+     * @throws IOException If there is no such entry or if it's compressed with
+     *                     an unsupported method.
+     */
+    public InputStream open(final String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null)
+            throw new ZipException("No such entry: " + name);
+
+        ByteBuffer data = slice(entry);
+        switch (entry.method) {
+            case METHOD_STORED:
+                return new ByteBufferInputStream(data);
+            case METHOD_DEFLATED:
+                return new InflaterInputStream(new ByteBufferInputStream(data), new Inflater(true)) {
+                    private boolean isClosed = false;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (!isClosed) {
+                            isClosed = true;
+                            inf.end();
+                            super.close();
+                        }
+                    }
+                };
+            default:
+                throw new ZipException("Unsupported compression method " + entry.method + ": " + name);
+        }
+    }
+
+
+    /**
+     * Locates the end of central directory record and indexes all entries in
+     * the central directory.
+     *
+     * @return The entry index, keyed on entry name.
+     * @throws IOException If the archive is malformed.
+     */
+    private Map<String, Entry> readCentralDirectory() throws IOException {
+        int end = findEndOfCentralDirectory();
+        int count = archive.getShort(end + 10) & 0xffff;
+        int offset = archive.getInt(end + 16);
+
+        Map<String, Entry> result = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (offset < 0 || offset + CENTRAL_DIRECTORY_HEADER_SIZE > archive.limit() ||
+                    archive.getInt(offset) != CENTRAL_DIRECTORY_SIGNATURE)
+                throw new ZipException("Corrupt central directory");
+
+            int method = archive.getShort(offset + 10) & 0xffff;
+            int compressedSize = archive.getInt(offset + 20);
+            int size = archive.getInt(offset + 24);
+            int nameLength = archive.getShort(offset + 28) & 0xffff;
+            int extraLength = archive.getShort(offset + 30) & 0xffff;
+            int commentLength = archive.getShort(offset + 32) & 0xffff;
+            int localHeaderOffset = archive.getInt(offset + 42);
+
+            byte[] name = new byte[nameLength];
+            ByteBuffer duplicate = archive.duplicate();
+            duplicate.position(offset + CENTRAL_DIRECTORY_HEADER_SIZE);
+            duplicate.get(name);
+
+            // Directories have no data to serve.
+            String entryName = new String(name, UTF_8);
+            if (!entryName.endsWith("/"))
+                result.put(entryName, new Entry(method, compressedSize, size, localHeaderOffset));
+
+            offset += CENTRAL_DIRECTORY_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        return result;
+    }
+
+    /**
+     * Scans the tail of the archive backwards for the end of central directory
+     * signature.
+     *
+     * @return The offset of the end of central directory record.
+     * @throws IOException If no such record could be found.
+     */
+    private int findEndOfCentralDirectory() throws IOException {
+        int last = archive.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int i = last; i >= first; i--)
+            if (archive.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                return i;
+
+        throw new ZipException("Not a zip archive");
+    }
+
+    /**
+     * Resolves the local file header of an entry and returns a view of the
+     * mapped archive that spans the (possibly compressed) entry data.
+     *
+     * @param entry The entry to get the data for.
+     * @return A buffer view of the entry data.
+     * @throws IOException If the local file header is malformed.
+     */
+    private ByteBuffer slice(final Entry entry) throws IOException {
+        int header = entry.localHeaderOffset;
+        if (header < 0 || header + LOCAL_FILE_HEADER_SIZE > archive.limit() ||
+                archive.getInt(header) != LOCAL_FILE_HEADER_SIGNATURE)
+            throw new ZipException("Corrupt local file header");
+
+        int nameLength = archive.getShort(header + 26) & 0xffff;
+        int extraLength = archive.getShort(header + 28) & 0xffff;
+        int start = header + LOCAL_FILE_HEADER_SIZE + nameLength + extraLength;
+        int end = start + entry.compressedSize;
+        if (end < start || end > archive.limit())
+            throw new ZipException("Corrupt entry data");
+
+        ByteBuffer duplicate = archive.duplicate();
+        duplicate.position(start);
+        duplicate.limit(end);
+        return duplicate.slice();
+    }
+}
@@ -0,0 +1,150 @@
+package com.echsylon.atlantis.extra;
+
+import android.content.Intent;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class AtlantisServiceTest {
+    private static final long SLOW_NETWORK_MILLIS = 2000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Any task posted to the background is held back until explicitly run.
+    // Whatever happens before that happens on the main thread.
+    private final QueueExecutor executor = new QueueExecutor();
+    private ServiceController<AtlantisService> controller;
+    private LoopbackConfigServer server;
+
+    @After
+    public void after() throws Exception {
+        if (controller != null) {
+            controller.destroy();
+            settle();
+        }
+        if (server != null)
+            server.close();
+    }
+
+    @Test
+    public void fileConfiguration_isNotReadOnMainThread() throws Exception {
+        Fixtures.setPreferences(true, Fixtures.writeFileConfiguration(folder.getRoot()));
+
+        AtlantisService service = create();
+        assertFalse(service.isAtlantisEnabled());
+
+        awaitReady();
+        assertTrue(service.isAtlantisEnabled());
+    }
+
+    @Test
+    public void bundleConfiguration_isNotReadOnMainThread() throws Exception {
+        String configuration = Fixtures.writeBundleConfiguration(folder.getRoot());
+        Fixtures.setPreferences(true, configuration);
+
+        AtlantisService service = create();
+        assertFalse(service.isAtlantisEnabled());
+
+        awaitReady();
+        assertTrue(service.isAtlantisEnabled());
+        assertEquals(configuration, service.getConfiguration());
+    }
+
+    @Test
+    public void networkConfiguration_isNotFetchedOnMainThread() throws Exception {
+        server = new LoopbackConfigServer(Fixtures.configuration(), SLOW_NETWORK_MILLIS);
+        Fixtures.setPreferences(true, server.url());
+
+        AtlantisService service = create();
+        assertEquals(0, server.requestCount());
+
+        awaitReady();
+        assertTrue(service.isAtlantisEnabled());
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    public void networkConfigurationCommand_isNotFetchedOnMainThread() throws Exception {
+        server = new LoopbackConfigServer(Fixtures.configuration(), SLOW_NETWORK_MILLIS);
+        Fixtures.setPreferences(false, null);
+
+        AtlantisService service = create();
+        awaitReady();
+        assertFalse(service.isAtlantisEnabled());
+
+        Intent intent = new Intent(RuntimeEnvironment.application, AtlantisService.class)
+                .setAction("echsylon.atlantis.action.SET")
+                .putExtra("echsylon.atlantis.extra.FEATURE", "ATLANTIS")
+                .putExtra("echsylon.atlantis.extra.ENABLE", true)
+                .putExtra("echsylon.atlantis.extra.DATA", server.url());
+
+        long start = Budget.now();
+        controller.withIntent(intent).startCommand(0, 1);
+        Budget.assertWithin("Main thread time in onStartCommand", Budget.now() - start, Budget.CREATE_MILLIS);
+        assertEquals(0, server.requestCount());
+
+        awaitReady();
+        assertTrue(service.isAtlantisEnabled());
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    public void disabledService_doesNotFetchConfiguration() throws Exception {
+        server = new LoopbackConfigServer(Fixtures.configuration(), 0);
+        Fixtures.setPreferences(false, server.url());
+
+        AtlantisService service = create();
+        awaitReady();
+        assertFalse(service.isAtlantisEnabled());
+        assertEquals(0, server.requestCount());
+    }
+
+
+    /**
+     * Creates the service with its background work held back. Any
+     * configuration read by {@code onCreate} itself would thereby happen on
+     * the main thread and show in the caller's assertions. The main thread
+     * time is also measured as a secondary guard.
+     */
+    private AtlantisService create() {
+        controller = Robolectric.buildService(AtlantisService.class);
+        controller.get().setExecutor(executor);
+
+        long start = Budget.now();
+        controller.create();
+        Budget.assertWithin("Main thread time in onCreate", Budget.now() - start, Budget.CREATE_MILLIS);
+
+        return controller.get();
+    }
+
+    /**
+     * Runs all queued background work and measures the time it takes.
+     */
+    private void awaitReady() {
+        long start = Budget.now();
+        settle();
+        Budget.assertWithin("Time to ready", Budget.now() - start, Budget.READY_MILLIS);
+    }
+
+    private void settle() {
+        do {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        } while (executor.runAll() > 0);
+    }
+}
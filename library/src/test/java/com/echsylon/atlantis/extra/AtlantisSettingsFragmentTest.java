@@ -0,0 +1,143 @@
+package com.echsylon.atlantis.extra;
+
+import android.content.ComponentName;
+import android.preference.Preference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class AtlantisSettingsFragmentTest {
+
+    /**
+     * Counts the number of times Atlantis is stopped and (re-)started.
+     */
+    public static class CountingAtlantisService extends AtlantisService {
+        private final AtomicInteger restartCount = new AtomicInteger(0);
+
+        @Override
+        public synchronized void setAtlantisEnabled(boolean enable, String configuration) {
+            restartCount.incrementAndGet();
+            super.setAtlantisEnabled(enable, configuration);
+        }
+
+        int getAndResetRestartCount() {
+            return restartCount.getAndSet(0);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final QueueExecutor executor = new QueueExecutor();
+    private ServiceController<CountingAtlantisService> serviceController;
+    private ActivityController<AtlantisSettingsActivity> activityController;
+    private CountingAtlantisService service;
+    private AtlantisSettingsFragment fragment;
+
+    @Before
+    public void before() throws Exception {
+        Fixtures.setPreferences(true, Fixtures.writeFileConfiguration(folder.getRoot()));
+
+        serviceController = Robolectric.buildService(CountingAtlantisService.class);
+        service = serviceController.get();
+        service.setExecutor(executor);
+        serviceController.create();
+        settle();
+        assertTrue(service.isAtlantisEnabled());
+        service.getAndResetRestartCount();
+
+        ComponentName component = new ComponentName(RuntimeEnvironment.application, AtlantisService.class);
+        shadowOf(RuntimeEnvironment.application)
+                .setComponentNameAndServiceForBindService(component, service.onBind(null));
+
+        long start = Budget.now();
+        activityController = Robolectric.buildActivity(AtlantisSettingsActivity.class)
+                .create()
+                .start()
+                .resume()
+                .visible();
+        AtlantisSettingsActivity activity = activityController.get();
+        activity.getFragmentManager().executePendingTransactions();
+        fragment = (AtlantisSettingsFragment) activity.getFragmentManager()
+                .findFragmentById(android.R.id.content);
+        settle();
+        Budget.assertWithin("Settings screen start", Budget.now() - start, Budget.SETTINGS_START_MILLIS);
+    }
+
+    @After
+    public void after() {
+        activityController.pause().stop().destroy();
+        serviceController.destroy();
+        settle();
+    }
+
+    @Test
+    public void bindingToRunningService_doesNotRestartAtlantis() {
+        Budget.assertWithin("Restarts when binding", service.getAndResetRestartCount(), Budget.BIND_RESTARTS);
+    }
+
+    @Test
+    public void toggleRecording_staysWithinRestartBudget() {
+        service.getAndResetRestartCount();
+        change(R.string.key_atlantis_record, true);
+        Budget.assertWithin("Restarts when recording is toggled", service.getAndResetRestartCount(), Budget.RECORD_RESTARTS);
+
+        change(R.string.key_atlantis_record_failures, true);
+        Budget.assertWithin("Restarts when failure recording is toggled", service.getAndResetRestartCount(), Budget.RECORD_RESTARTS);
+    }
+
+    @Test
+    public void toggleEnabled_staysWithinRestartBudget() {
+        service.getAndResetRestartCount();
+        change(R.string.key_atlantis_enable, false);
+        Budget.assertWithin("Restarts when Atlantis is disabled", service.getAndResetRestartCount(), Budget.ENABLE_RESTARTS);
+
+        change(R.string.key_atlantis_enable, true);
+        Budget.assertWithin("Restarts when Atlantis is enabled", service.getAndResetRestartCount(), Budget.ENABLE_RESTARTS);
+    }
+
+    @Test
+    public void changeConfiguration_staysWithinRestartBudget() throws Exception {
+        service.getAndResetRestartCount();
+        change(R.string.key_atlantis_configuration, Fixtures.writeBundleConfiguration(folder.getRoot()));
+        Budget.assertWithin("Restarts when configuration is changed", service.getAndResetRestartCount(), Budget.CONFIGURATION_RESTARTS);
+    }
+
+
+    /**
+     * Simulates a user changing a preference value in the settings screen.
+     */
+    private void change(final int keyResId, final Object newValue) {
+        Preference preference = fragment.findPreference(RuntimeEnvironment.application.getString(keyResId));
+        preference.callChangeListener(newValue);
+        settle();
+    }
+
+    /**
+     * Runs all pending background and main thread work, including the delayed
+     * integrity validation in the settings fragment.
+     */
+    private void settle() {
+        do {
+            ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        } while (executor.runAll() > 0);
+    }
+}
@@ -0,0 +1,166 @@
+package com.echsylon.atlantis.extra;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AtlantisStatisticsTest {
+    private static final long ONE_MILLI = 1_000_000L;
+    private static final double DELTA = 0.0001d;
+
+    /**
+     * Offers a manually advanced clock.
+     */
+    private static final class FakeClockStatistics extends AtlantisStatistics {
+        private long now = 1_000_000_000_000L;
+
+        FakeClockStatistics(final int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+
+        void advanceMillis(final long millis) {
+            now += millis * ONE_MILLI;
+        }
+    }
+
+    @Test
+    public void emptyStatistics_reportNoSamples() {
+        AtlantisStatistics.Snapshot snapshot = new AtlantisStatistics(4).snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(0, snapshot.sampleCount);
+        assertEquals(0, snapshot.requestsPerSecond);
+        assertEquals(0, snapshot.latencySampleCount);
+        assertEquals(0d, snapshot.p50LatencyMillis, DELTA);
+        assertEquals(0f, snapshot.hitRatio(), DELTA);
+    }
+
+    @Test
+    public void fullBuffer_overwritesOldestSamples() {
+        AtlantisStatistics statistics = new AtlantisStatistics(4);
+        for (int i = 1; i <= 6; i++)
+            statistics.record(i * ONE_MILLI, i > 4);
+
+        // Samples 1 and 2 are overwritten, leaving 3, 4, 5 and 6.
+        AtlantisStatistics.Snapshot snapshot = statistics.snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(4, snapshot.sampleCount);
+        assertEquals(4, snapshot.latencySampleCount);
+        assertEquals(4d, snapshot.p50LatencyMillis, DELTA);
+        assertEquals(6d, snapshot.p99LatencyMillis, DELTA);
+        assertEquals(2, snapshot.hitCount);
+        assertEquals(2, snapshot.missCount);
+    }
+
+    @Test
+    public void percentiles_useNearestRank() {
+        AtlantisStatistics statistics = new AtlantisStatistics(100);
+        // Recorded in reverse to make sure the samples are sorted.
+        for (int i = 100; i >= 1; i--)
+            statistics.record(i * ONE_MILLI, true);
+
+        AtlantisStatistics.Snapshot snapshot = statistics.snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(50d, snapshot.p50LatencyMillis, DELTA);
+        assertEquals(95d, snapshot.p95LatencyMillis, DELTA);
+        assertEquals(99d, snapshot.p99LatencyMillis, DELTA);
+    }
+
+    @Test
+    public void percentiles_roundRankUp() {
+        AtlantisStatistics statistics = new AtlantisStatistics(8);
+        for (int i = 1; i <= 3; i++)
+            statistics.record(i * ONE_MILLI, true);
+
+        // Ranks 2, 3 and 3 of 3 samples.
+        AtlantisStatistics.Snapshot snapshot = statistics.snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(2d, snapshot.p50LatencyMillis, DELTA);
+        assertEquals(3d, snapshot.p95LatencyMillis, DELTA);
+        assertEquals(3d, snapshot.p99LatencyMillis, DELTA);
+    }
+
+    @Test
+    public void percentiles_keepSubMillisecondPrecision() {
+        AtlantisStatistics statistics = new AtlantisStatistics(4);
+        statistics.record(1_500_000L, true);
+
+        AtlantisStatistics.Snapshot snapshot = statistics.snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(1.5d, snapshot.p50LatencyMillis, DELTA);
+    }
+
+    @Test
+    public void negativeLatency_onlyCountsTowardsHitRatio() {
+        AtlantisStatistics statistics = new AtlantisStatistics(8);
+        statistics.record(-1, true);
+        statistics.record(-1, false);
+        statistics.record(4 * ONE_MILLI, true);
+
+        AtlantisStatistics.Snapshot snapshot = statistics.snapshot(new AtlantisStatistics.Snapshot());
+        assertEquals(3, snapshot.sampleCount);
+        assertEquals(1, snapshot.latencySampleCount);
+        assertEquals(4d, snapshot.p50LatencyMillis, DELTA);
+        assertEquals(4d, snapshot.p99LatencyMillis, DELTA);
+        assertEquals(2, snapshot.hitCount);
+        assertEquals(1, snapshot.missCount);
+        assertEquals(2f / 3f, snapshot.hitRatio(), DELTA);
+    }
+
+    @Test
+    public void requestsPerSecond_countsSamplesFromTheLastSecond() {
+        FakeClockStatistics statistics = new FakeClockStatistics(16);
+        for (int i = 0; i < 3; i++)
+            statistics.record(ONE_MILLI, true);
+
+        statistics.advanceMillis(600);
+        for (int i = 0; i < 2; i++)
+            statistics.record(ONE_MILLI, true);
+
+        AtlantisStatistics.Snapshot snapshot = new AtlantisStatistics.Snapshot();
+        assertEquals(5, statistics.snapshot(snapshot).requestsPerSecond);
+
+        statistics.advanceMillis(600);
+        assertEquals(2, statistics.snapshot(snapshot).requestsPerSecond);
+
+        statistics.advanceMillis(600);
+        assertEquals(0, statistics.snapshot(snapshot).requestsPerSecond);
+        assertEquals(5, snapshot.sampleCount);
+    }
+
+    @Test
+    public void requestsPerSecond_isCappedByCapacity() {
+        FakeClockStatistics statistics = new FakeClockStatistics(4);
+        for (int i = 0; i < 10; i++)
+            statistics.record(ONE_MILLI, true);
+
+        assertEquals(4, statistics.snapshot(new AtlantisStatistics.Snapshot()).requestsPerSecond);
+    }
+
+    @Test
+    public void clear_forgetsAllSamples() {
+        FakeClockStatistics statistics = new FakeClockStatistics(4);
+        for (int i = 0; i < 6; i++)
+            statistics.record(ONE_MILLI, false);
+
+        AtlantisStatistics.Snapshot snapshot = new AtlantisStatistics.Snapshot();
+        assertEquals(4, statistics.snapshot(snapshot).requestsPerSecond);
+
+        statistics.clear();
+        statistics.snapshot(snapshot);
+        assertEquals(0, snapshot.sampleCount);
+        assertEquals(0, snapshot.requestsPerSecond);
+        assertEquals(0, snapshot.latencySampleCount);
+        assertEquals(0, snapshot.missCount);
+
+        statistics.record(2 * ONE_MILLI, true);
+        statistics.snapshot(snapshot);
+        assertEquals(1, snapshot.sampleCount);
+        assertEquals(1, snapshot.requestsPerSecond);
+        assertEquals(2d, snapshot.p50LatencyMillis, DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveCapacity_isRejected() {
+        new AtlantisStatistics(0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.echsylon.atlantis.extra;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Exposes the performance budgets configured in 'gradle.properties' and
+ * offers means of asserting measurements against them.
+ */
+final class Budget {
+    static final long CREATE_MILLIS = get("budget.createMillis");
+    static final long READY_MILLIS = get("budget.readyMillis");
+    static final long SETTINGS_START_MILLIS = get("budget.settingsStartMillis");
+    static final long BIND_RESTARTS = get("budget.bindRestarts");
+    static final long CONFIGURATION_RESTARTS = get("budget.configurationRestarts");
+    static final long ENABLE_RESTARTS = get("budget.enableRestarts");
+    static final long RECORD_RESTARTS = get("budget.recordRestarts");
+
+    private Budget() {
+    }
+
+    /**
+     * Fails the current test if the measured value exceeds the budget.
+     *
+     * @param what     A short description of what was measured.
+     * @param measured The measured value.
+     * @param budget   The max allowed value.
+     */
+    static void assertWithin(final String what, final long measured, final long budget) {
+        if (measured > budget)
+            fail(what + " exceeded its budget: " + measured + " > " + budget);
+    }
+
+    /**
+     * Returns the current monotonic time in milliseconds.
+     *
+     * @return The time in milliseconds.
+     */
+    static long now() {
+        return System.nanoTime() / 1_000_000L;
+    }
+
+    private static long get(final String key) {
+        String value = System.getProperty(key);
+        if (value == null)
+            throw new IllegalStateException("Missing budget: " + key + ". Run the tests through Gradle.");
+
+        return Long.parseLong(value.trim());
+    }
+}
@@ -0,0 +1,113 @@
+package com.echsylon.atlantis.extra;
+
+import android.content.Context;
+import android.preference.PreferenceManager;
+
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Offers local stand-ins for the configuration sources used in tests.
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Sets the persisted Atlantis preferences the service and the settings
+     * screen start from.
+     *
+     * @param enabled       The Atlantis enabled state.
+     * @param configuration The configuration description.
+     */
+    static void setPreferences(final boolean enabled, final String configuration) {
+        Context context = RuntimeEnvironment.application;
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putBoolean(context.getString(R.string.key_atlantis_enable), enabled)
+                .putString(context.getString(R.string.key_atlantis_configuration), configuration)
+                .commit();
+    }
+
+    /**
+     * Returns the raw fixture configuration.
+     *
+     * @return The configuration JSON bytes.
+     * @throws IOException If the fixture resource couldn't be read.
+     */
+    static byte[] configuration() throws IOException {
+        InputStream inputStream = Fixtures.class.getResourceAsStream("/config.json");
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1)
+                outputStream.write(buffer, 0, count);
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Writes the fixture configuration to a file and returns a "file://"
+     * description for it.
+     *
+     * @param directory The directory to write the file in.
+     * @return The configuration description.
+     * @throws IOException If the file couldn't be written.
+     */
+    static String writeFileConfiguration(final File directory) throws IOException {
+        File file = new File(directory, "config.json");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(configuration());
+        } finally {
+            outputStream.close();
+        }
+
+        return "file://" + file.getAbsolutePath();
+    }
+
+    /**
+     * Writes the fixture configuration, together with a stored response body,
+     * to a zip bundle and returns a "bundle://" description for it.
+     *
+     * @param directory The directory to write the bundle in.
+     * @return The configuration description.
+     * @throws IOException If the bundle couldn't be written.
+     */
+    static String writeBundleConfiguration(final File directory) throws IOException {
+        File file = new File(directory, "mocks.zip");
+        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            outputStream.putNextEntry(new ZipEntry("config.json"));
+            outputStream.write(configuration());
+            outputStream.closeEntry();
+
+            byte[] body = "pong".getBytes("UTF-8");
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ZipEntry entry = new ZipEntry("body/ping.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(body.length);
+            entry.setCompressedSize(body.length);
+            entry.setCrc(crc.getValue());
+            outputStream.putNextEntry(entry);
+            outputStream.write(body);
+            outputStream.closeEntry();
+        } finally {
+            outputStream.close();
+        }
+
+        return "bundle://" + file.getAbsolutePath();
+    }
+}
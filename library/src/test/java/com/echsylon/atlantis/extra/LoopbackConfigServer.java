@@ -0,0 +1,92 @@
+package com.echsylon.atlantis.extra;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal HTTP server on the loopback interface, serving the very same
+ * configuration for any request. An artificial response delay can be set to
+ * make synchronous network access on the main thread stand out in the
+ * measurements.
+ */
+final class LoopbackConfigServer implements Closeable {
+    private final ServerSocket serverSocket;
+    private final byte[] body;
+    private final long delayMillis;
+    private final AtomicInteger requestCount = new AtomicInteger(0);
+    private final Thread thread;
+
+    LoopbackConfigServer(final byte[] body, final long delayMillis) throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        this.body = body;
+        this.delayMillis = delayMillis;
+        this.thread = new Thread(this::acceptConnections, "loopback-config-server");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Returns the url to the served configuration.
+     *
+     * @return The configuration url.
+     */
+    String url() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/config.json";
+    }
+
+    /**
+     * Returns the number of configuration requests served so far.
+     *
+     * @return The request count.
+     */
+    int requestCount() {
+        return requestCount.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed())
+            try {
+                Socket socket = serverSocket.accept();
+                try {
+                    serve(socket);
+                } finally {
+                    socket.close();
+                }
+            } catch (IOException | InterruptedException e) {
+                // The server socket is closed or the client went away.
+            }
+    }
+
+    private void serve(final Socket socket) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+        String line = reader.readLine();
+        while (line != null && !line.isEmpty())
+            line = reader.readLine();
+
+        requestCount.incrementAndGet();
+        Thread.sleep(delayMillis);
+
+        String header = "HTTP/1.1 200 OK\r\n" +
+                "Content-Type: application/json\r\n" +
+                "Content-Length: " + body.length + "\r\n" +
+                "Connection: close\r\n" +
+                "\r\n";
+
+        OutputStream outputStream = socket.getOutputStream();
+        outputStream.write(header.getBytes("UTF-8"));
+        outputStream.write(body);
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,37 @@
+package com.echsylon.atlantis.extra;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds back any executed tasks until explicitly run on the calling thread.
+ */
+final class QueueExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public synchronized void execute(final Runnable task) {
+        tasks.add(task);
+    }
+
+    /**
+     * Runs all queued tasks, including any tasks queued while running.
+     *
+     * @return The number of tasks run.
+     */
+    int runAll() {
+        int count = 0;
+        Runnable task;
+        while ((task = poll()) != null) {
+            task.run();
+            count++;
+        }
+
+        return count;
+    }
+
+    private synchronized Runnable poll() {
+        return tasks.poll();
+    }
+}
@@ -0,0 +1,189 @@
+package com.echsylon.atlantis.extra;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ZipBundleTest {
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storedEntry_isServedAsIs() throws Exception {
+        File file = folder.newFile("stored.zip");
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong".getBytes("UTF-8"));
+
+        ZipBundle bundle = ZipBundle.forFile(file);
+        assertTrue(bundle.contains("body/ping.txt"));
+        assertEquals(4, bundle.size("body/ping.txt"));
+        assertEquals("pong", new String(read(bundle.open("body/ping.txt")), "UTF-8"));
+    }
+
+    @Test
+    public void deflatedEntry_isInflated() throws Exception {
+        byte[] content = new byte[10000];
+        Arrays.fill(content, (byte) 'a');
+        File file = folder.newFile("deflated.zip");
+        writeZip(file, ZipEntry.DEFLATED, "body/large.txt", content);
+
+        ZipBundle bundle = ZipBundle.forFile(file);
+        assertEquals(content.length, bundle.size("body/large.txt"));
+        assertArrayEquals(content, read(bundle.open("body/large.txt")));
+    }
+
+    @Test
+    public void dataDescriptorEntry_isReadThroughCentralDirectory() throws Exception {
+        // ZipOutputStream writes deflated entries with zero sizes in the
+        // local header followed by a trailing data descriptor.
+        File file = folder.newFile("descriptor.zip");
+        writeZip(file, ZipEntry.DEFLATED, "config.json", "{}".getBytes("UTF-8"));
+        assertTrue((readShort(file, 6) & DATA_DESCRIPTOR_FLAG) != 0);
+
+        ZipBundle bundle = ZipBundle.forFile(file);
+        assertEquals("{}", new String(read(bundle.open("config.json")), "UTF-8"));
+    }
+
+    @Test
+    public void directoryEntry_isNotListed() throws Exception {
+        File file = folder.newFile("directory.zip");
+        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            outputStream.putNextEntry(new ZipEntry("body/"));
+            outputStream.closeEntry();
+        } finally {
+            outputStream.close();
+        }
+
+        ZipBundle bundle = ZipBundle.forFile(file);
+        assertFalse(bundle.contains("body/"));
+        assertTrue(bundle.names().isEmpty());
+    }
+
+    @Test(expected = ZipException.class)
+    public void missingEntry_throwsOnOpen() throws Exception {
+        File file = folder.newFile("missing.zip");
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong".getBytes("UTF-8"));
+
+        ZipBundle.forFile(file).open("body/pong.txt");
+    }
+
+    @Test(expected = ZipException.class)
+    public void missingEndOfCentralDirectory_throwsOnMap() throws Exception {
+        File file = folder.newFile("garbage.zip");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[512]);
+        } finally {
+            outputStream.close();
+        }
+
+        ZipBundle.forFile(file);
+    }
+
+    @Test(expected = ZipException.class)
+    public void corruptLocalHeader_throwsOnOpen() throws Exception {
+        File file = folder.newFile("corrupt.zip");
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong".getBytes("UTF-8"));
+
+        // Break the local file header signature of the first entry. The
+        // central directory remains intact.
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.write(new byte[4]);
+        } finally {
+            randomAccessFile.close();
+        }
+
+        ZipBundle bundle = ZipBundle.forFile(file);
+        assertTrue(bundle.contains("body/ping.txt"));
+        bundle.open("body/ping.txt");
+    }
+
+    @Test
+    public void unchangedArchive_reusesMapping() throws Exception {
+        File file = folder.newFile("reused.zip");
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong".getBytes("UTF-8"));
+
+        ZipBundle first = ZipBundle.forFile(file);
+        ZipBundle second = ZipBundle.forFile(file);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void changedArchive_isMappedAgain() throws Exception {
+        File file = folder.newFile("changed.zip");
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong".getBytes("UTF-8"));
+        ZipBundle first = ZipBundle.forFile(file);
+
+        writeZip(file, ZipEntry.STORED, "body/ping.txt", "pong pong".getBytes("UTF-8"));
+        ZipBundle second = ZipBundle.forFile(file);
+
+        assertNotSame(first, second);
+        assertEquals("pong pong", new String(read(second.open("body/ping.txt")), "UTF-8"));
+    }
+
+
+    private static void writeZip(final File file, final int method, final String name, final byte[] content) throws IOException {
+        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setSize(content.length);
+                entry.setCompressedSize(content.length);
+                entry.setCrc(crc.getValue());
+            }
+            outputStream.putNextEntry(entry);
+            outputStream.write(content);
+            outputStream.closeEntry();
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static byte[] read(final InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1)
+                outputStream.write(buffer, 0, count);
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static int readShort(final File file, final int offset) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            randomAccessFile.seek(offset);
+            return randomAccessFile.read() | (randomAccessFile.read() << 8);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}